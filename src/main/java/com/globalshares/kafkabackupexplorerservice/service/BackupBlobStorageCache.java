@@ -0,0 +1,286 @@
+package com.globalshares.kafkabackupexplorerservice.service;
+
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.models.BlobItem;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * shared access to the backup container which keeps listings (and optionally the compressed bytes) in memory.
+ * An hour is sealed once it is older than the configured seal delay - its listing and content are then kept for the
+ * (longer) listing / content TTL, as late blobs can still arrive. The directory levels above the hours (root, topic,
+ * year, month, day) are kept for a short structure TTL only, open hours are never cached
+ */
+@Slf4j
+@Component
+public class BackupBlobStorageCache {
+
+    /**
+     * matches any prefix or blob name which is located in an hour directory
+     */
+    private static final Pattern HOUR_NODE_PATTERN = Pattern.compile(".*/year=(?<year>\\d+)/month=(?<month>\\d+)/day=(?<day>\\d+)/hour=(?<hour>\\d+)/.*");
+
+    @Value("${kafka.backupStorage.connectionString}")
+    private String kafkaBackupStorageConnectionString;
+
+    @Value("${kafka.backupStorage.container.name}")
+    private String kafkaBackupStorageContainer;
+
+    @Value("${cache.timeZone:UTC}")
+    private String timeZone;
+
+    @Value("${cache.sealDelay:PT15M}")
+    private Duration sealDelay;
+
+    @Value("${cache.listings.maxEntries:2000}")
+    private int maxListingEntries;
+
+    @Value("${cache.listings.ttl:PT30M}")
+    private Duration listingTtl;
+
+    @Value("${cache.listings.structureTtl:PT2M}")
+    private Duration structureListingTtl;
+
+    @Value("${cache.content.enabled:false}")
+    private boolean contentCacheEnabled;
+
+    @Value("${cache.content.maxBytes:268435456}")
+    private long maxContentBytes;
+
+    @Value("${cache.content.ttl:PT30M}")
+    private Duration contentTtl;
+
+    private Clock clock = Clock.systemUTC();
+
+    private volatile BlobContainerClient blobContainerClient = null;
+
+    private final Map<String, CacheEntry<List<BlobItem>>> listingCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<List<BlobItem>>> eldest) {
+            return size() > maxListingEntries;
+        }
+    };
+
+    private final LinkedHashMap<String, CacheEntry<byte[]>> contentCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long contentCacheBytes = 0;
+
+    /**
+     * a cached value together with the instant it must be reloaded at - an instant and not a local time, so a DST change
+     * of the partitioning time zone does not shorten or extend the TTL
+     */
+    private record CacheEntry<T>(T value, Instant expiresAt) {
+    }
+
+    @PostConstruct
+    private void oneTimeInit() {
+        clock = Clock.system(ZoneId.of(timeZone));
+    }
+
+    /**
+     * get the (shared) container client. The client is built once and is thread-safe
+     *
+     * @return the client for the backup container
+     */
+    public BlobContainerClient getBlobContainerClient() {
+        var client = blobContainerClient;
+        if (client == null) {
+            synchronized (this) {
+                client = blobContainerClient;
+                if (client == null) {
+                    if (kafkaBackupStorageConnectionString == null || kafkaBackupStorageConnectionString.isBlank()) {
+                        throw new RuntimeException("Kafka backup storage connection string is not set");
+                    }
+                    if (kafkaBackupStorageContainer == null || kafkaBackupStorageContainer.isBlank()) {
+                        throw new RuntimeException("Kafka backup container is not set");
+                    }
+                    client = new BlobServiceClientBuilder().connectionString(kafkaBackupStorageConnectionString).buildClient().getBlobContainerClient(kafkaBackupStorageContainer);
+                    blobContainerClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * list the direct children of a prefix. Cached listings are used until they expire
+     *
+     * @param prefix the directory prefix to list
+     * @return the items directly below the prefix
+     */
+    public List<BlobItem> listBlobsByHierarchy(String prefix) {
+        List<BlobItem> items;
+        synchronized (listingCache) {
+            items = getValidListing(prefix);
+        }
+        if (items != null) {
+            log.trace(String.format("listing of %s served from cache", prefix));
+            return items;
+        }
+
+        return refreshListing(prefix);
+    }
+
+    /**
+     * list the direct children of a prefix from the container (bypassing the cache) and replace the cached listing
+     *
+     * @param prefix the directory prefix to list
+     * @return the items directly below the prefix
+     */
+    public List<BlobItem> refreshListing(String prefix) {
+        List<BlobItem> items = getBlobContainerClient().listBlobsByHierarchy(prefix).stream().toList();
+
+        Duration ttl = getListingTtl(prefix);
+        synchronized (listingCache) {
+            if (ttl.isPositive()) {
+                listingCache.put(prefix, new CacheEntry<>(items, clock.instant().plus(ttl)));
+            } else {
+                listingCache.remove(prefix);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * download the (compressed) content of a blob. If enabled, the bytes of sealed hours are kept in the cache
+     *
+     * @param blobName the full name of the blob
+     * @return the raw bytes as stored in the container
+     */
+    public byte[] downloadContent(String blobName) {
+        if (contentCacheEnabled) {
+            synchronized (contentCache) {
+                byte[] content = getValidContent(blobName);
+                if (content != null) {
+                    log.trace(String.format("content of %s served from cache", blobName));
+                    return content;
+                }
+            }
+        }
+
+        byte[] content = getBlobContainerClient().getBlobClient(blobName).downloadContent().toBytes();
+        if (contentCacheEnabled && contentTtl.isPositive() && isSealed(blobName)) {
+            cacheContent(blobName, content);
+        }
+        return content;
+    }
+
+    /**
+     * check if the blob content is cached and not yet expired
+     *
+     * @param blobName the full name of the blob
+     * @return true if the content is present in the cache
+     */
+    public boolean isContentCached(String blobName) {
+        synchronized (contentCache) {
+            return getValidContent(blobName) != null;
+        }
+    }
+
+    /**
+     * @return how long the directory levels above the hours are cached
+     */
+    public Duration getStructureListingTtl() {
+        return structureListingTtl;
+    }
+
+    /**
+     * @return the number of compressed bytes currently held in the content cache
+     */
+    long getContentCacheBytes() {
+        synchronized (contentCache) {
+            return contentCacheBytes;
+        }
+    }
+
+    /**
+     * @return if compressed bytes are cached at all
+     */
+    public boolean isContentCacheEnabled() {
+        return contentCacheEnabled;
+    }
+
+    /**
+     * check if the hour a prefix or blob belongs to is complete and its content is not expected to change anymore
+     *
+     * @param name the prefix or blob name
+     * @return true if the name is located in a sealed hour, false otherwise (or if it is no hour node at all)
+     */
+    public boolean isSealed(String name) {
+        Matcher matcher = HOUR_NODE_PATTERN.matcher(name);
+        if (! matcher.matches()) {
+            return false;
+        }
+
+        LocalDateTime hourStart = LocalDateTime.of(Integer.parseInt(matcher.group("year")), Integer.parseInt(matcher.group("month")), Integer.parseInt(matcher.group("day")), Integer.parseInt(matcher.group("hour")), 0, 0);
+        return hourStart.plusHours(1).plus(sealDelay).isBefore(now());
+    }
+
+    /**
+     * @return the current time in the time zone the backup directories are partitioned by
+     */
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    // sealed hours are kept for the listing TTL, open hours not at all and all levels above the hours for the structure TTL
+    private Duration getListingTtl(String prefix) {
+        if (HOUR_NODE_PATTERN.matcher(prefix).matches()) {
+            return isSealed(prefix) ? listingTtl : Duration.ZERO;
+        }
+        return structureListingTtl;
+    }
+
+    // get the cached listing - expired entries are removed. Must be called while holding the lock of the listing cache
+    private List<BlobItem> getValidListing(String prefix) {
+        CacheEntry<List<BlobItem>> entry = listingCache.get(prefix);
+        if (entry != null && ! entry.expiresAt().isAfter(clock.instant())) {
+            listingCache.remove(prefix);
+            return null;
+        }
+        return entry == null ? null : entry.value();
+    }
+
+    // get the cached content - expired entries are removed. Must be called while holding the lock of the content cache
+    private byte[] getValidContent(String blobName) {
+        CacheEntry<byte[]> entry = contentCache.get(blobName);
+        if (entry != null && ! entry.expiresAt().isAfter(clock.instant())) {
+            contentCache.remove(blobName);
+            contentCacheBytes -= entry.value().length;
+            return null;
+        }
+        return entry == null ? null : entry.value();
+    }
+
+    private void cacheContent(String blobName, byte[] content) {
+        if (content.length > maxContentBytes) {
+            return;
+        }
+
+        synchronized (contentCache) {
+            CacheEntry<byte[]> previous = contentCache.put(blobName, new CacheEntry<>(content, clock.instant().plus(contentTtl)));
+            if (previous != null) {
+                contentCacheBytes -= previous.value().length;
+            }
+            contentCacheBytes += content.length;
+
+            // evict the least recently used entries until the cache fits again
+            Iterator<Map.Entry<String, CacheEntry<byte[]>>> iterator = contentCache.entrySet().iterator();
+            while (contentCacheBytes > maxContentBytes && iterator.hasNext()) {
+                contentCacheBytes -= iterator.next().getValue().value().length;
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.globalshares.kafkabackupexplorerservice.service;
+
+import com.azure.storage.blob.models.BlobItem;
+import com.globalshares.kafkabackupexplorerservice.data.BackupBlobStorageNode;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * walks the backup tree and builds the storage nodes - used by the controller as well as by the warm-up
+ */
+@Slf4j
+@Service
+public class BackupStorageNodeService {
+
+    /**
+     * the match for all topics
+     */
+    public static final String[] TOPIC_ALL = { "*", "ALL" };
+
+    @Autowired
+    private BackupBlobStorageCache backupBlobStorageCache;
+
+    @Value("${kafka.backupStorage.container.rootDirectory}")
+    private String kafkaBackupStorageContainerRootDirectory;
+
+    @Value("${regex.fileNode}")
+    private String fileNodePatternRegEx;
+
+    @Value("${regex.structuralNode}")
+    private String structuralNodePatternRegEx;
+    private Pattern fileNodePattern = null;
+    private Pattern structuralNodePattern = null;
+
+    /**
+     * compile the node patterns once the properties are injected - done eagerly so concurrent requests never see a half initialized state
+     */
+    @PostConstruct
+    private void oneTimeInit() {
+        fileNodePattern = Pattern.compile(fileNodePatternRegEx);
+        structuralNodePattern = Pattern.compile(structuralNodePatternRegEx);
+        // structuralNodePattern = Pattern.compile("([a-zA-Z_0-9-]*)/?([a-zA-Z_0-9-]*)?/?(year=(\\d+))?/?(month=(\\d+))?/?(day=(\\d+))?/?(hour=(\\d+))?/");
+    }
+
+    /**
+     * load the tree below the root directory
+     *
+     * @param filterTopics the topics to use or * / ALL for all topics
+     * @param nodesFrom defines the date nodes should start at
+     * @param nodesUntil defines the date nodes should end at
+     * @param searchPattern the content search pattern. If null, then no data nodes will be returned
+     * @return a list of tree entries (and file nodes, if search pattern matches were present)
+     */
+    public List<BackupBlobStorageNode> loadStorageNodes(
+            String[] filterTopics,
+            Optional<LocalDateTime> nodesFrom,
+            Optional<LocalDateTime> nodesUntil,
+            Pattern searchPattern) {
+        return loadStorageNodes(filterTopics, nodesFrom, nodesUntil, searchPattern, () -> false);
+    }
+
+    /**
+     * load the tree below the root directory, stopping early once the walk got cancelled
+     *
+     * @param filterTopics the topics to use or * / ALL for all topics
+     * @param nodesFrom defines the date nodes should start at
+     * @param nodesUntil defines the date nodes should end at
+     * @param searchPattern the content search pattern. If null, then no data nodes will be returned
+     * @param isCancelled checked before every node - once true, the remaining nodes are skipped
+     * @return a list of tree entries (and file nodes, if search pattern matches were present) - incomplete if cancelled
+     */
+    public List<BackupBlobStorageNode> loadStorageNodes(
+            String[] filterTopics,
+            Optional<LocalDateTime> nodesFrom,
+            Optional<LocalDateTime> nodesUntil,
+            Pattern searchPattern,
+            BooleanSupplier isCancelled) {
+        return loadStorageNodes(kafkaBackupStorageContainerRootDirectory, filterTopics, nodesFrom, nodesUntil, searchPattern, isCancelled);
+    }
+
+    // Check if the passed filter equals a logical "all" topics
+    private boolean useAllTopics(String[] filterTopics) {
+        assert filterTopics != null;
+
+        return filterTopics.length == 1 && Arrays.stream(TOPIC_ALL).anyMatch (t -> t.equalsIgnoreCase(filterTopics[0]));
+    }
+
+    private List<BackupBlobStorageNode> loadStorageNodes(
+            String rootNode,
+            String[] filterTopics,
+            Optional<LocalDateTime> nodesFrom,
+            Optional<LocalDateTime> nodesUntil,
+            Pattern searchPattern,
+            BooleanSupplier isCancelled) {
+        var nodes = new ArrayList<BackupBlobStorageNode>();
+
+        backupBlobStorageCache.listBlobsByHierarchy(rootNode).forEach(blob -> {
+            if (isCancelled.getAsBoolean()) {
+                log.trace(String.format("walk cancelled, node %s skipped", blob.getName()));
+                return;
+            }
+
+            log.debug(String.format("%s %s%n", (blob.isPrefix() ? "(D)" : "   "), blob.getName()));
+
+            BackupBlobStorageNode currentNode = null;
+
+            if (blob.isPrefix()) {
+                // check for the dates in structural nodes as perhaps no traversal is necessary
+                Matcher matcher = structuralNodePattern.matcher(blob.getName());
+
+                // parse the name -> first in order will be the year, then the month, day and hour
+                if (! matcher.matches()) {
+                    // should there be no match... problem...
+                    log.debug(String.format("a directory node doesn't match the pattern and was skipped: " + blob.getName()));
+                    return;
+                }
+
+                // build the comparison map of the real compare values
+                Map<String, String> keyValueSet = new HashMap<>();
+                matcher.namedGroups().forEach((groupName, index) -> {
+                    log.trace(String.format("%s (%d): %s%n", groupName, index, matcher.group(groupName)));
+
+                    if (matcher.group(groupName) != null) {
+                        keyValueSet.put(groupName, matcher.group(groupName));
+                    }
+                });
+
+                boolean isNodeUsable = isNodeUsable(blob, keyValueSet, filterTopics, nodesFrom.orElse(LocalDateTime.MIN), nodesUntil.orElse(LocalDateTime.MAX));
+                if (! isNodeUsable) {
+                    log.debug(String.format("Node %s skipped as date range was set to %s - %s%n", blob.getName(), nodesFrom.orElse(LocalDateTime.MIN), nodesUntil.orElse(LocalDateTime.MAX)));
+                    return;
+                }
+
+                // only use the record if the match is correct. If no data is passed in then MIN / MAX will be used (always match). In case only the topic is passed then just continue
+                currentNode = new BackupBlobStorageNode(blob.getName(), loadStorageNodes(blob.getName(), filterTopics, nodesFrom, nodesUntil, searchPattern, isCancelled));
+            } else {
+                // only if we are searching for something really
+                if (searchPattern != null) {
+
+                    // then we check for the files
+                    Matcher matcher = fileNodePattern.matcher(blob.getName());
+                    if (matcher.matches()) {
+                        try {
+                            // if it is a proper data file, then check the content if a match happens
+                            String uncompressedFileContent = decompressDataFile(blob);
+                            if (searchPattern.matcher(uncompressedFileContent).find()) {
+                                String topicName =  matcher.group("topic");
+                                String fileName = matcher.group("fileName");
+                                LocalDateTime representedDateTime = LocalDateTime.of(Integer.parseInt(matcher.group("year")), Integer.parseInt(matcher.group("month")), Integer.parseInt(matcher.group("day")), Integer.parseInt(matcher.group("hour")), 0, 0);
+
+                                currentNode = new BackupBlobStorageNode(blob.getName(), topicName, fileName, representedDateTime, uncompressedFileContent);
+
+                                log.debug(String.format("Topic: %s, represented time: %s, filename: %s\n", currentNode.getTopicName(), currentNode.getRepresentedDateTime().toString(), currentNode.getFileName()));
+                                log.debug(String.format("First 400 characters: %s\n", currentNode.getFileContent().substring(0, Math.min(currentNode.getFileContent().length(), 400))));
+                            } else {
+                                log.debug(String.format("entry skipped as content does not match pattern: %s ", searchPattern.pattern()));
+                            }
+                        } catch (Exception ex) {
+                            // a cancelled walk interrupts the running download - that's expected and no error
+                            if (isCancelled.getAsBoolean()) {
+                                log.debug(String.format("walk cancelled while parsing blob item: %s", blob.getName()));
+                            } else {
+                                log.error(String.format("error while parsing blob item: %s %s ", blob.getName(), ex));
+                            }
+                        }
+                    } else {
+                        // if no match for the filename pattern then this is any other file which we do not want to use
+                        log.debug("entry skipped as no proper data file");
+                    }
+                } else {
+                    log.debug("as no search pattern is present no need to scan files as well");
+                }
+            }
+
+            if (currentNode != null) {
+                nodes.add(currentNode);
+            }
+        });
+
+        return nodes;
+    }
+
+    /**
+     * decompress the content (in gz format) of the blob item
+     * @param blob is the item to decompress
+     * @return the decompressed string
+     */
+    private String decompressDataFile(BlobItem blob) {
+        try (ByteArrayOutputStream fos = new ByteArrayOutputStream()) {
+            try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(backupBlobStorageCache.downloadContent(blob.getName())))) {
+                byte[] buffer = new byte[1024];
+                int len;
+                while ((len = gis.read(buffer)) > 0) {
+                    fos.write(buffer, 0, len);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            return fos.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean isNodeUsable(BlobItem blob, Map<String, String> keyValueSet, String[] filterTopics, LocalDateTime from, LocalDateTime until) {
+
+        // now we can check for the topic(s) - if not all, then there must be a match
+        if (! useAllTopics(filterTopics) && Arrays.stream(filterTopics).noneMatch(t -> keyValueSet.get("topic").equalsIgnoreCase(t))) {
+            log.debug(String.format("Node %s skipped as topic %s was not in the filtered topic list: %s%n", blob.getName(), keyValueSet.get("topic"), String.join(", ", filterTopics)));
+            return false;
+        }
+
+        int day = 1;
+        int month = 1;
+        int year = 1900;
+        int hour = 0;
+        boolean isNodeUsable = true;
+
+        for (String key : keyValueSet.keySet()) {
+            switch (key) {
+                case "year":
+                    year = Integer.parseInt(keyValueSet.get(key));
+                    if (from.getYear() > year || until.getYear() < year) {
+                        log.debug(String.format("Year %d is not in range", year));
+                        isNodeUsable = false;
+                    }
+                    break;
+
+                case "month":
+                    month = Integer.parseInt(keyValueSet.get(key));
+                    if (
+                        ! from.isBefore(LocalDateTime.of(year, month, YearMonth.of(year, month).lengthOfMonth(), 23, 59, 59)) ||
+                        ! until.isAfter(LocalDateTime.of(year, month, 1, 0, 0, 0)))
+                    {
+                        log.debug(String.format("%d-%d is not in range", year, month));
+                        isNodeUsable = false;
+                    }
+                    break;
+
+                case "day":
+                    day = Integer.parseInt(keyValueSet.get(key));
+                    if (
+                        ! from.isBefore(LocalDateTime.of(year, month, day, 23, 59, 59)) ||
+                        ! until.isAfter(LocalDateTime.of(year, month, day, 0, 0, 0)))
+                    {
+                        log.debug(String.format("%d-%d-%d is not in range", year, month, day));
+                        isNodeUsable = false;
+                    }
+                    break;
+
+                case "hour":
+                    hour = Integer.parseInt(keyValueSet.get(key));
+                    if (
+                        ! from.isBefore(LocalDateTime.of(year, month, day, hour, 59, 59)) ||
+                        ! until.isAfter(LocalDateTime.of(year, month, day, hour, 0, 0)))
+                    {
+                        log.debug(String.format("%d-%d-%d %d is not in range", year, month, day, hour));
+                        isNodeUsable = false;
+                    }
+                    break;
+
+            }
+
+            if (! isNodeUsable) {
+                break;
+            }
+        }
+
+        return isNodeUsable;
+    }
+}
@@ -0,0 +1,237 @@
+package com.globalshares.kafkabackupexplorerservice.service;
+
+import com.azure.storage.blob.models.BlobItem;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * warms the service up before it reports readiness and keeps the most recent hours of the hot topics prefetched.
+ * Spring runs all application runners before the readiness state switches to accepting traffic, so the first
+ * queries after a deploy hit an initialized client, JIT compiled query path and cached listings
+ */
+@Slf4j
+@Service
+public class BackupWarmUpService implements ApplicationRunner {
+
+    /**
+     * used to run the content search during the warm-up - every file is decompressed and scanned, nothing is returned
+     */
+    private static final Pattern NEVER_MATCHING_PATTERN = Pattern.compile("(?!)");
+
+    @Autowired
+    private BackupBlobStorageCache backupBlobStorageCache;
+
+    @Autowired
+    private BackupStorageNodeService backupStorageNodeService;
+
+    @Value("${kafka.backupStorage.container.rootDirectory}")
+    private String kafkaBackupStorageContainerRootDirectory;
+
+    @Value("${warmUp.enabled:true}")
+    private boolean warmUpEnabled;
+
+    @Value("${warmUp.timeout:PT30S}")
+    private Duration warmUpTimeout;
+
+    @Value("${warmUp.hours:1}")
+    private int warmUpHours;
+
+    @Value("${cache.prefetch.enabled:true}")
+    private boolean prefetchEnabled;
+
+    @Value("${cache.prefetch.topics:}")
+    private String[] prefetchTopics;
+
+    @Value("${cache.prefetch.hours:3}")
+    private int prefetchHours;
+
+    @Value("${cache.prefetch.interval:PT1M}")
+    private Duration prefetchInterval;
+
+    /**
+     * the directory levels above the hours are kept warm by the prefetch only, so they must not expire between two runs
+     */
+    @PostConstruct
+    private void oneTimeInit() {
+        if (prefetchEnabled && prefetchTopics.length > 0 && backupBlobStorageCache.getStructureListingTtl().compareTo(prefetchInterval) <= 0) {
+            throw new IllegalStateException(String.format("cache.listings.structureTtl (%s) must be longer than cache.prefetch.interval (%s)", backupBlobStorageCache.getStructureListingTtl(), prefetchInterval));
+        }
+    }
+
+    /**
+     * run the warm-up phase. Readiness waits for at most the warm-up timeout - any failure or timeout is logged only,
+     * as the service is still usable (just cold)
+     *
+     * @param args the application arguments (unused)
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (! warmUpEnabled) {
+            log.info("warm-up is disabled");
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        Future<?> warmUp = executor.submit(() -> warmUp(cancelled::get));
+        try {
+            warmUp.get(warmUpTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            log.info(String.format("warm-up finished in %d ms", System.currentTimeMillis() - started));
+        } catch (TimeoutException ex) {
+            cancelled.set(true);
+            warmUp.cancel(true);
+            log.warn(String.format("warm-up did not finish within %s, service starts partly cold", warmUpTimeout));
+        } catch (InterruptedException ex) {
+            cancelled.set(true);
+            warmUp.cancel(true);
+            Thread.currentThread().interrupt();
+            log.warn("warm-up was interrupted, service starts cold");
+        } catch (ExecutionException ex) {
+            log.warn("warm-up failed, service starts cold", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * build the client, prefetch the hot hours and run the query path once over the last hours, so the JIT has seen it
+     * before the first user does. The tree walk covers all topics, the content search (which downloads every blob in the
+     * window) only runs for the hot topics and is skipped if there are none
+     *
+     * @param isCancelled set once the warm-up timed out - all remaining work is skipped then
+     */
+    private void warmUp(BooleanSupplier isCancelled) {
+        backupBlobStorageCache.getBlobContainerClient();
+        prefetchRecentHours(isCancelled);
+        if (isCancelled.getAsBoolean()) {
+            return;
+        }
+
+        LocalDateTime until = backupBlobStorageCache.now();
+        Optional<LocalDateTime> from = Optional.of(until.minusHours(warmUpHours));
+        String[] allTopics = { BackupStorageNodeService.TOPIC_ALL[0] };
+        backupStorageNodeService.loadStorageNodes(allTopics, from, Optional.of(until), null, isCancelled);
+        if (prefetchTopics.length > 0 && ! isCancelled.getAsBoolean()) {
+            backupStorageNodeService.loadStorageNodes(prefetchTopics, from, Optional.of(until), NEVER_MATCHING_PATTERN, isCancelled);
+        }
+    }
+
+    /**
+     * prefetch the listings (and, if the content cache is enabled, the compressed bytes) of the last sealed hours
+     * of all hot topics, together with the directory levels above them (root, topic, year, month and day - including
+     * the ones of the current hour). The listings are always re-read from the container so late blobs show up, hours
+     * which are not sealed yet are picked up by a later run
+     */
+    @Scheduled(fixedDelayString = "${cache.prefetch.interval:PT1M}", initialDelayString = "${cache.prefetch.interval:PT1M}")
+    public void prefetchRecentHours() {
+        prefetchRecentHours(() -> false);
+    }
+
+    private void prefetchRecentHours(BooleanSupplier isCancelled) {
+        if (! prefetchEnabled || prefetchTopics.length == 0) {
+            return;
+        }
+
+        LocalDateTime currentHour = backupBlobStorageCache.now().truncatedTo(ChronoUnit.HOURS);
+        Set<String> parentPrefixes = new LinkedHashSet<>();
+        for (String topic : prefetchTopics) {
+            for (int i = 0; i <= prefetchHours; i++) {
+                parentPrefixes.addAll(getParentPrefixes(topic, currentHour.minusHours(i)));
+            }
+        }
+        for (String prefix : parentPrefixes) {
+            if (isCancelled.getAsBoolean()) {
+                return;
+            }
+            try {
+                backupBlobStorageCache.refreshListing(prefix);
+            } catch (Exception ex) {
+                if (isCancelled.getAsBoolean()) {
+                    log.debug(String.format("prefetch cancelled while listing %s", prefix));
+                    return;
+                }
+                log.warn(String.format("error while prefetching %s %s ", prefix, ex));
+            }
+        }
+
+        for (String topic : prefetchTopics) {
+            for (int i = 1; i <= prefetchHours; i++) {
+                String prefix = getHourPrefix(topic, currentHour.minusHours(i));
+                if (isCancelled.getAsBoolean()) {
+                    return;
+                }
+                if (! backupBlobStorageCache.isSealed(prefix)) {
+                    continue;
+                }
+
+                try {
+                    for (BlobItem blob : backupBlobStorageCache.refreshListing(prefix)) {
+                        if (isCancelled.getAsBoolean()) {
+                            return;
+                        }
+                        if (! blob.isPrefix() && backupBlobStorageCache.isContentCacheEnabled() && ! backupBlobStorageCache.isContentCached(blob.getName())) {
+                            backupBlobStorageCache.downloadContent(blob.getName());
+                        }
+                    }
+                    log.debug(String.format("prefetched %s", prefix));
+                } catch (Exception ex) {
+                    // a cancelled warm-up interrupts the running download - that's expected and no error
+                    if (isCancelled.getAsBoolean()) {
+                        log.debug(String.format("prefetch cancelled while loading %s", prefix));
+                        return;
+                    }
+                    log.warn(String.format("error while prefetching %s %s ", prefix, ex));
+                }
+            }
+        }
+    }
+
+    /**
+     * build the directory prefix of an hour of a topic as laid out in the backup container
+     *
+     * @param topic the topic name
+     * @param hour the hour (minutes and below are ignored)
+     * @return the prefix, e.g. topics/neptunedb-reports/year=2023/month=11/day=03/hour=15/
+     */
+    public String getHourPrefix(String topic, LocalDateTime hour) {
+        return String.format("%shour=%02d/", getParentPrefixes(topic, hour).getLast(), hour.getHour());
+    }
+
+    /**
+     * build the directory prefixes a query walks through before it reaches the hour of a topic
+     *
+     * @param topic the topic name
+     * @param hour the hour (minutes and below are ignored)
+     * @return the root, topic, year, month and day prefix - in this order
+     */
+    public List<String> getParentPrefixes(String topic, LocalDateTime hour) {
+        String topicPrefix = String.format("%s%s/", kafkaBackupStorageContainerRootDirectory, topic);
+        String yearPrefix = String.format("%syear=%04d/", topicPrefix, hour.getYear());
+        String monthPrefix = String.format("%smonth=%02d/", yearPrefix, hour.getMonthValue());
+        String dayPrefix = String.format("%sday=%02d/", monthPrefix, hour.getDayOfMonth());
+        return List.of(kafkaBackupStorageContainerRootDirectory, topicPrefix, yearPrefix, monthPrefix, dayPrefix);
+    }
+}
@@ -0,0 +1,62 @@
+package com.globalshares.kafkabackupexplorerservice;
+
+import com.azure.storage.blob.models.BlobItem;
+import com.globalshares.kafkabackupexplorerservice.service.BackupBlobStorageCache;
+import com.globalshares.kafkabackupexplorerservice.service.BackupStorageNodeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BackupStorageNodeServiceTest {
+
+    private static final String HOUR_15 = "topics/neptunedb-security/year=2023/month=11/day=03/hour=15/";
+
+    private BackupStorageNodeService nodeService;
+    private BackupBlobStorageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = mock(BackupBlobStorageCache.class);
+
+        nodeService = new BackupStorageNodeService();
+        ReflectionTestUtils.setField(nodeService, "backupBlobStorageCache", cache);
+        ReflectionTestUtils.setField(nodeService, "kafkaBackupStorageContainerRootDirectory", HOUR_15);
+        ReflectionTestUtils.setField(nodeService, "fileNodePattern", Pattern.compile("([a-zA-Z_0-9-]+)/(?<topic>([a-zA-Z_0-9-]+))/year=(?<year>\\d+)/month=(?<month>\\d+)/day=(?<day>\\d+)/hour=(?<hour>\\d+)/(?<fileName>([a-zA-Z_0-9-+.]+))"));
+        ReflectionTestUtils.setField(nodeService, "structuralNodePattern", Pattern.compile("([a-zA-Z_0-9-]*)/?(?<topic>([a-zA-Z_0-9-]*))?/?(year=(?<year>\\d+))?/?(month=(?<month>\\d+))?/?(day=(?<day>\\d+))?/?(hour=(?<hour>\\d+))?/"));
+
+        when(cache.listBlobsByHierarchy(HOUR_15)).thenReturn(List.of(
+                new BlobItem().setName(HOUR_15 + "neptunedb-security+1+0000000000.json.gz").setIsPrefix(false),
+                new BlobItem().setName(HOUR_15 + "neptunedb-security+1+0000000100.json.gz").setIsPrefix(false)));
+    }
+
+    @Test
+    void cancelledWalkStopsDownloading() {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        when(cache.downloadContent(anyString())).thenAnswer(invocation -> {
+            cancelled.set(true);
+            throw new RuntimeException("java.lang.InterruptedException");
+        });
+
+        var nodes = nodeService.loadStorageNodes(new String[] { "*" }, Optional.empty(), Optional.empty(), Pattern.compile(".*"), cancelled::get);
+
+        assertTrue(nodes.isEmpty());
+        verify(cache, times(1)).downloadContent(anyString());
+    }
+
+    @Test
+    void walkWithoutCancellationVisitsAllBlobs() {
+        when(cache.downloadContent(anyString())).thenThrow(new RuntimeException("not a gzip file"));
+
+        nodeService.loadStorageNodes(new String[] { "*" }, Optional.empty(), Optional.empty(), Pattern.compile(".*"));
+
+        verify(cache, times(2)).downloadContent(anyString());
+    }
+}
@@ -0,0 +1,126 @@
+package com.globalshares.kafkabackupexplorerservice;
+
+import com.globalshares.kafkabackupexplorerservice.service.BackupBlobStorageCache;
+import com.globalshares.kafkabackupexplorerservice.service.BackupStorageNodeService;
+import com.globalshares.kafkabackupexplorerservice.service.BackupWarmUpService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BackupWarmUpServiceTest {
+
+    private BackupWarmUpService warmUpService;
+    private BackupBlobStorageCache cache;
+    private BackupStorageNodeService nodeService;
+
+    @BeforeEach
+    void setUp() {
+        cache = mock(BackupBlobStorageCache.class);
+        when(cache.now()).thenReturn(LocalDateTime.of(2023, 11, 3, 16, 20, 0));
+        nodeService = mock(BackupStorageNodeService.class);
+
+        warmUpService = new BackupWarmUpService();
+        ReflectionTestUtils.setField(warmUpService, "backupBlobStorageCache", cache);
+        ReflectionTestUtils.setField(warmUpService, "backupStorageNodeService", nodeService);
+        ReflectionTestUtils.setField(warmUpService, "kafkaBackupStorageContainerRootDirectory", "topics/");
+        ReflectionTestUtils.setField(warmUpService, "warmUpEnabled", true);
+        ReflectionTestUtils.setField(warmUpService, "warmUpTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(warmUpService, "warmUpHours", 1);
+        ReflectionTestUtils.setField(warmUpService, "prefetchEnabled", true);
+        ReflectionTestUtils.setField(warmUpService, "prefetchTopics", new String[0]);
+        ReflectionTestUtils.setField(warmUpService, "prefetchHours", 3);
+    }
+
+    @Test
+    void hourPrefixMatchesBackupLayout() {
+        String prefix = warmUpService.getHourPrefix("neptunedb-security", LocalDateTime.of(2023, 11, 3, 15, 42, 7));
+        assertEquals("topics/neptunedb-security/year=2023/month=11/day=03/hour=15/", prefix);
+
+        final Pattern structuralNodePattern = Pattern.compile("([a-zA-Z_0-9-]*)/?(?<topic>([a-zA-Z_0-9-]*))?/?(year=(?<year>\\d+))?/?(month=(?<month>\\d+))?/?(day=(?<day>\\d+))?/?(hour=(?<hour>\\d+))?/");
+        Matcher matcher = structuralNodePattern.matcher(prefix);
+        assertTrue(matcher.matches());
+        assertEquals("neptunedb-security", matcher.group("topic"));
+        assertEquals("03", matcher.group("day"));
+        assertEquals("15", matcher.group("hour"));
+    }
+
+    @Test
+    void warmUpRunsTreeWalkOnlyWithoutHotTopics() {
+        warmUpService.run(null);
+
+        verify(cache).getBlobContainerClient();
+        verify(nodeService).loadStorageNodes(eq(new String[] { "*" }), any(), any(), isNull(), any());
+        verify(nodeService, never()).loadStorageNodes(any(), any(), any(), notNull(), any());
+        verify(cache, never()).refreshListing(anyString());
+    }
+
+    @Test
+    void warmUpSearchesHotTopicsOnly() {
+        ReflectionTestUtils.setField(warmUpService, "prefetchEnabled", false);
+        ReflectionTestUtils.setField(warmUpService, "prefetchTopics", new String[] { "neptunedb-security" });
+
+        warmUpService.run(null);
+
+        verify(nodeService).loadStorageNodes(eq(new String[] { "*" }), any(), any(), isNull(), any());
+        verify(nodeService).loadStorageNodes(eq(new String[] { "neptunedb-security" }), any(), any(), notNull(), any());
+        verify(nodeService, never()).loadStorageNodes(eq(new String[] { "*" }), any(), any(), notNull(), any());
+    }
+
+    @Test
+    void prefetchRefreshesSealedHoursAndParentsOfHotTopics() {
+        ReflectionTestUtils.setField(warmUpService, "prefetchTopics", new String[] { "neptunedb-security" });
+        when(cache.isSealed(anyString())).thenReturn(true);
+        when(cache.refreshListing(anyString())).thenReturn(List.of());
+
+        warmUpService.prefetchRecentHours();
+
+        verify(cache).refreshListing("topics/neptunedb-security/year=2023/month=11/day=03/hour=15/");
+        verify(cache).refreshListing("topics/neptunedb-security/year=2023/month=11/day=03/hour=14/");
+        verify(cache).refreshListing("topics/neptunedb-security/year=2023/month=11/day=03/hour=13/");
+        verify(cache, never()).refreshListing("topics/neptunedb-security/year=2023/month=11/day=03/hour=16/");
+
+        // the levels above the hours are refreshed once per run, so a "last hour" query never lists them cold
+        verify(cache).refreshListing("topics/");
+        verify(cache).refreshListing("topics/neptunedb-security/");
+        verify(cache).refreshListing("topics/neptunedb-security/year=2023/");
+        verify(cache).refreshListing("topics/neptunedb-security/year=2023/month=11/");
+        verify(cache).refreshListing("topics/neptunedb-security/year=2023/month=11/day=03/");
+        verify(cache, never()).listBlobsByHierarchy(anyString());
+    }
+
+    @Test
+    void warmUpStopsWaitingAtTimeout() {
+        ReflectionTestUtils.setField(warmUpService, "warmUpTimeout", Duration.ofMillis(200));
+        when(nodeService.loadStorageNodes(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return List.of();
+        });
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> warmUpService.run(null));
+
+        // the walk still running in the background is told to stop
+        ArgumentCaptor<BooleanSupplier> isCancelled = ArgumentCaptor.forClass(BooleanSupplier.class);
+        verify(nodeService).loadStorageNodes(any(), any(), any(), isNull(), isCancelled.capture());
+        assertTrue(isCancelled.getValue().getAsBoolean());
+    }
+
+    @Test
+    void warmUpFailureDoesNotPreventStartup() {
+        when(cache.getBlobContainerClient()).thenThrow(new RuntimeException("Kafka backup storage connection string is not set"));
+
+        assertDoesNotThrow(() -> warmUpService.run(null));
+        verifyNoInteractions(nodeService);
+    }
+}
@@ -0,0 +1,37 @@
+package com.globalshares.kafkabackupexplorerservice;
+
+import com.globalshares.kafkabackupexplorerservice.controller.KafkaBackupExplorerServiceController;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@SpringBootTest(properties = "warmUp.enabled=false")
+public class KafkaBackupExplorerReadinessTest {
+
+    private static Boolean readyWhileRunnersRun = null;
+
+    @Autowired
+    private KafkaBackupExplorerServiceController kafkaBackupExplorerServiceController;
+
+    /**
+     * records the readiness as seen by an application runner - the same phase the warm-up runs in
+     */
+    @TestConfiguration
+    static class ReadinessProbeConfiguration {
+
+        @Bean
+        ApplicationRunner readinessProbe(KafkaBackupExplorerServiceController controller) {
+            return args -> readyWhileRunnersRun = controller.isReady();
+        }
+    }
+
+    @Test
+    void isReadyOnlyAfterRunnersFinished() {
+        Assertions.assertEquals(Boolean.FALSE, readyWhileRunnersRun);
+        Assertions.assertTrue(kafkaBackupExplorerServiceController.isReady());
+    }
+}
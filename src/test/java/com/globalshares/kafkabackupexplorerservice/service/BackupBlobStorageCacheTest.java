@@ -0,0 +1,240 @@
+package com.globalshares.kafkabackupexplorerservice.service;
+
+import com.azure.core.http.rest.PagedIterable;
+import com.azure.core.util.BinaryData;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.models.BlobItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BackupBlobStorageCacheTest {
+
+    private static final String HOUR_15 = "topics/neptunedb-security/year=2023/month=11/day=03/hour=15/";
+    private static final String HOUR_16 = "topics/neptunedb-security/year=2023/month=11/day=03/hour=16/";
+
+    private BackupBlobStorageCache cache;
+    private BlobContainerClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = mock(BlobContainerClient.class);
+
+        cache = new BackupBlobStorageCache();
+        ReflectionTestUtils.setField(cache, "blobContainerClient", client);
+        ReflectionTestUtils.setField(cache, "sealDelay", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(cache, "maxListingEntries", 100);
+        ReflectionTestUtils.setField(cache, "listingTtl", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(cache, "structureListingTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cache, "contentCacheEnabled", true);
+        ReflectionTestUtils.setField(cache, "maxContentBytes", 100L);
+        ReflectionTestUtils.setField(cache, "contentTtl", Duration.ofMinutes(30));
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 20, 0));
+    }
+
+    @Test
+    void isSealedAtHourAndSealDelayBoundaries() {
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 0, 0));
+        assertFalse(cache.isSealed(HOUR_15));
+
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 15, 0));
+        assertFalse(cache.isSealed(HOUR_15));
+
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 15, 1));
+        assertTrue(cache.isSealed(HOUR_15));
+        assertTrue(cache.isSealed(HOUR_15 + "neptunedb-security+1+0000000000.json.gz"));
+        assertFalse(cache.isSealed(HOUR_16));
+
+        ReflectionTestUtils.setField(cache, "sealDelay", Duration.ZERO);
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 0, 1));
+        assertTrue(cache.isSealed(HOUR_15));
+    }
+
+    @Test
+    void isSealedIgnoresNamesOutsideOfHours() {
+        assertFalse(cache.isSealed("topics/"));
+        assertFalse(cache.isSealed("topics/neptunedb-security/"));
+        assertFalse(cache.isSealed("topics/neptunedb-security/year=2023/month=11/day=03/"));
+        assertFalse(cache.isSealed("topics/neptunedb-security/year=2023/month=11/day=03/hour=15"));
+        assertFalse(cache.isSealed("readme.txt"));
+    }
+
+    @Test
+    void sealedHourListingIsCachedUntilTtl() {
+        PagedIterable<BlobItem> before = paged(blob(HOUR_15 + "a.json.gz"));
+        PagedIterable<BlobItem> after = paged(blob(HOUR_15 + "a.json.gz"), blob(HOUR_15 + "b.json.gz"));
+        when(client.listBlobsByHierarchy(HOUR_15)).thenReturn(before, after);
+
+        assertEquals(1, cache.listBlobsByHierarchy(HOUR_15).size());
+        assertEquals(1, cache.listBlobsByHierarchy(HOUR_15).size());
+        verify(client, times(1)).listBlobsByHierarchy(HOUR_15);
+
+        // a late blob is visible once the listing expired
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 50, 0));
+        assertEquals(2, cache.listBlobsByHierarchy(HOUR_15).size());
+        verify(client, times(2)).listBlobsByHierarchy(HOUR_15);
+    }
+
+    @Test
+    void listingTtlIsNotExtendedWhenClocksGoBack() {
+        // Europe/Dublin goes back from 02:00 IST to 01:00 GMT on 2023-10-29, so 01:50 local exists twice
+        String hour00 = "topics/neptunedb-security/year=2023/month=10/day=29/hour=00/";
+        PagedIterable<BlobItem> items = paged(blob(hour00 + "a.json.gz"));
+        when(client.listBlobsByHierarchy(hour00)).thenReturn(items);
+
+        Instant firstOneFifty = Instant.parse("2023-10-29T00:50:00Z");
+        setNow(firstOneFifty, ZoneId.of("Europe/Dublin"));
+        cache.listBlobsByHierarchy(hour00);
+
+        // 40 minutes later the local time is 01:30 again, but the 30 minutes TTL has passed
+        setNow(firstOneFifty.plus(Duration.ofMinutes(40)), ZoneId.of("Europe/Dublin"));
+        cache.listBlobsByHierarchy(hour00);
+        verify(client, times(2)).listBlobsByHierarchy(hour00);
+    }
+
+    @Test
+    void refreshListingBypassesTheCache() {
+        PagedIterable<BlobItem> before = paged(blob(HOUR_15 + "a.json.gz"));
+        PagedIterable<BlobItem> after = paged(blob(HOUR_15 + "a.json.gz"), blob(HOUR_15 + "b.json.gz"));
+        when(client.listBlobsByHierarchy(HOUR_15)).thenReturn(before, after);
+
+        assertEquals(1, cache.listBlobsByHierarchy(HOUR_15).size());
+        assertEquals(2, cache.refreshListing(HOUR_15).size());
+        assertEquals(2, cache.listBlobsByHierarchy(HOUR_15).size());
+        verify(client, times(2)).listBlobsByHierarchy(HOUR_15);
+    }
+
+    @Test
+    void openHourListingIsNotCached() {
+        PagedIterable<BlobItem> items = paged(blob(HOUR_16 + "a.json.gz"));
+        when(client.listBlobsByHierarchy(HOUR_16)).thenReturn(items);
+
+        cache.listBlobsByHierarchy(HOUR_16);
+        cache.listBlobsByHierarchy(HOUR_16);
+        verify(client, times(2)).listBlobsByHierarchy(HOUR_16);
+    }
+
+    @Test
+    void structureListingUsesStructureTtl() {
+        PagedIterable<BlobItem> items = paged(prefix("topics/neptunedb-security/"));
+        when(client.listBlobsByHierarchy("topics/")).thenReturn(items);
+
+        cache.listBlobsByHierarchy("topics/");
+        cache.listBlobsByHierarchy("topics/");
+        verify(client, times(1)).listBlobsByHierarchy("topics/");
+
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 21, 0));
+        cache.listBlobsByHierarchy("topics/");
+        verify(client, times(2)).listBlobsByHierarchy("topics/");
+    }
+
+    @Test
+    void contentCacheEvictsLeastRecentlyUsedByBytes() {
+        mockContent(HOUR_15 + "a.json.gz", 40);
+        mockContent(HOUR_15 + "b.json.gz", 40);
+        mockContent(HOUR_15 + "c.json.gz", 40);
+
+        cache.downloadContent(HOUR_15 + "a.json.gz");
+        cache.downloadContent(HOUR_15 + "b.json.gz");
+        assertEquals(80L, cache.getContentCacheBytes());
+
+        // a is used again, so b is the least recently used entry
+        cache.downloadContent(HOUR_15 + "a.json.gz");
+        cache.downloadContent(HOUR_15 + "c.json.gz");
+
+        assertEquals(80L, cache.getContentCacheBytes());
+        assertTrue(cache.isContentCached(HOUR_15 + "a.json.gz"));
+        assertFalse(cache.isContentCached(HOUR_15 + "b.json.gz"));
+        assertTrue(cache.isContentCached(HOUR_15 + "c.json.gz"));
+        verify(client, times(1)).getBlobClient(HOUR_15 + "a.json.gz");
+    }
+
+    @Test
+    void contentCacheAccountsForChangedContentAfterExpiry() {
+        BlobClient blobClient = mock(BlobClient.class);
+        BinaryData smaller = BinaryData.fromBytes(new byte[40]);
+        BinaryData larger = BinaryData.fromBytes(new byte[60]);
+        when(blobClient.downloadContent()).thenReturn(smaller, larger);
+        when(client.getBlobClient(HOUR_15 + "a.json.gz")).thenReturn(blobClient);
+
+        assertEquals(40, cache.downloadContent(HOUR_15 + "a.json.gz").length);
+        assertEquals(40, cache.downloadContent(HOUR_15 + "a.json.gz").length);
+        assertEquals(40L, cache.getContentCacheBytes());
+
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 50, 0));
+        assertEquals(60, cache.downloadContent(HOUR_15 + "a.json.gz").length);
+        assertEquals(60L, cache.getContentCacheBytes());
+        assertTrue(cache.isContentCached(HOUR_15 + "a.json.gz"));
+        verify(blobClient, times(2)).downloadContent();
+    }
+
+    @Test
+    void contentCacheRejectsEntryLargerThanMaxBytes() {
+        mockContent(HOUR_15 + "a.json.gz", 40);
+        mockContent(HOUR_15 + "huge.json.gz", 101);
+
+        cache.downloadContent(HOUR_15 + "a.json.gz");
+        assertEquals(101, cache.downloadContent(HOUR_15 + "huge.json.gz").length);
+
+        assertEquals(40L, cache.getContentCacheBytes());
+        assertTrue(cache.isContentCached(HOUR_15 + "a.json.gz"));
+        assertFalse(cache.isContentCached(HOUR_15 + "huge.json.gz"));
+    }
+
+    @Test
+    void contentCacheExpiresEntriesAndOnlyKeepsSealedHours() {
+        mockContent(HOUR_15 + "a.json.gz", 40);
+        mockContent(HOUR_16 + "a.json.gz", 40);
+
+        cache.downloadContent(HOUR_15 + "a.json.gz");
+        cache.downloadContent(HOUR_16 + "a.json.gz");
+        assertFalse(cache.isContentCached(HOUR_16 + "a.json.gz"));
+        assertEquals(40L, cache.getContentCacheBytes());
+
+        setNow(LocalDateTime.of(2023, 11, 3, 16, 50, 0));
+        assertFalse(cache.isContentCached(HOUR_15 + "a.json.gz"));
+        assertEquals(0L, cache.getContentCacheBytes());
+    }
+
+    private void setNow(LocalDateTime now) {
+        setNow(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
+
+    private void setNow(Instant now, ZoneId zone) {
+        ReflectionTestUtils.setField(cache, "clock", Clock.fixed(now, zone));
+    }
+
+    private void mockContent(String blobName, int length) {
+        BlobClient blobClient = mock(BlobClient.class);
+        BinaryData content = BinaryData.fromBytes(new byte[length]);
+        when(blobClient.downloadContent()).thenReturn(content);
+        when(client.getBlobClient(blobName)).thenReturn(blobClient);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PagedIterable<BlobItem> paged(BlobItem... items) {
+        PagedIterable<BlobItem> paged = mock(PagedIterable.class);
+        when(paged.stream()).thenAnswer(invocation -> Stream.of(items));
+        return paged;
+    }
+
+    private static BlobItem blob(String name) {
+        return new BlobItem().setName(name).setIsPrefix(false);
+    }
+
+    private static BlobItem prefix(String name) {
+        return new BlobItem().setName(name).setIsPrefix(true);
+    }
+}